@@ -3,14 +3,19 @@ package org.bitpioneers.config;
 import com.fasterxml.jackson.annotation.JsonTypeInfo;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceClientConfiguration;
 import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
 import org.springframework.data.redis.core.*;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
 
+import java.time.Duration;
+
 /**
 * The RedisConfig class is a configuration class responsible for defining and configuring various components related
  * to the integration of Redis, a popular in-memory data store, into a Spring-based application. This class specifies
@@ -28,7 +33,8 @@ import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSeriali
  *     <li>
  *         Redis Template Operations Configuration: The class defines several methods for creating beans that represent
  *         various Redis template operations, such as HyperLogLog, Hash, ZSet, and more. These beans are used to perform
- *         specific operations on Redis data structures.
+ *         specific operations on Redis data structures. They are initialized lazily, since the generator itself
+ *         works with the RedisTemplate directly and does not need them to start.
  *     </li>
  *     <li>
  *         ObjectMapper Configuration: The class provides a method for configuring a default ObjectMapper with features
@@ -47,11 +53,16 @@ public class RedisConfig {
     /**
      * This method defines a RedisConnectionFactory bean that specifies the connection to the Redis server.
      * It utilizes Lettuce as the Redis client and configures a connection to a standalone Redis server
-     * running on specific host and port
+     * running on specific host and port. Commands time out after a short configurable period, so that a slow or
+     * paused Redis is detected quickly instead of blocking the caller for the default minute.
      */
     @Bean
-    public RedisConnectionFactory redisConnectionFactory() {
-        return new LettuceConnectionFactory(new RedisStandaloneConfiguration("localhost", 6379));
+    public RedisConnectionFactory redisConnectionFactory(
+            @Value("${app.data-generator.redis-command-timeout}") long commandTimeoutMillis) {
+        LettuceClientConfiguration clientConfiguration = LettuceClientConfiguration.builder()
+                .commandTimeout(Duration.ofMillis(commandTimeoutMillis))
+                .build();
+        return new LettuceConnectionFactory(new RedisStandaloneConfiguration("localhost", 6379), clientConfiguration);
     }
 
 
@@ -70,46 +81,55 @@ public class RedisConfig {
         return redisTemplate;
     }
 
+    @Lazy
     @Bean
     public <K, V> HyperLogLogOperations<K, V> hyperLogLogOperations(RedisTemplate<K, V> template) {
         return template.opsForHyperLogLog();
     }
 
+    @Lazy
     @Bean
     public <K, HK, V> HashOperations<K, HK, V> hashOperations(RedisTemplate<K, V> template) {
         return template.opsForHash();
     }
 
+    @Lazy
     @Bean
     public <K, V> ZSetOperations<K, V> zSetOperations(RedisTemplate<K, V> template) {
         return template.opsForZSet();
     }
 
+    @Lazy
     @Bean
     public <K, V> ClusterOperations<K, V> clusterOperations(RedisTemplate<K, V> template) {
         return template.opsForCluster();
     }
 
+    @Lazy
     @Bean
     public <K, V> GeoOperations<K, V> geoOperations(RedisTemplate<K, V> template) {
         return template.opsForGeo();
     }
 
+    @Lazy
     @Bean
     public <K, V> ListOperations<K, V> listOperations(RedisTemplate<K, V> template) {
         return template.opsForList();
     }
 
+    @Lazy
     @Bean
     public <K, V> SetOperations<K, V> setOperations(RedisTemplate<K, V> template) {
         return template.opsForSet();
     }
 
+    @Lazy
     @Bean
     public <K, HK, V> StreamOperations<K, HK, V> streamOperations(RedisTemplate<K, V> template) {
         return template.opsForStream();
     }
 
+    @Lazy
     @Bean
     public <K, V> ValueOperations<K, V> valueOperations(RedisTemplate<K, V> template) {
         return template.opsForValue();
@@ -0,0 +1,62 @@
+package org.bitpioneers.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.bitpioneers.service.GeneratorDiagnostics;
+import org.bitpioneers.types.DiagnosticEvent;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+* The DiagnosticsController class exposes the diagnostics of the generator over HTTP. It returns the counters of
+ * the hot path events and allows switching the per-branch trace mode on and off at runtime.
+ * @see GeneratorDiagnostics
+ * @since 1.0
+ * @author Mirolim Mirzayev
+*/
+@Lazy
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/diagnostics")
+public class DiagnosticsController {
+    private final GeneratorDiagnostics generatorDiagnostics;
+
+    /**
+    * Returns the counters of the events since the last summary.
+    */
+    @GetMapping("/counters")
+    public Map<DiagnosticEvent, Long> getCounters() {
+        return generatorDiagnostics.getCounters();
+    }
+
+    /**
+    * Returns the identifiers of the branches for which tracing is switched on.
+    */
+    @GetMapping("/trace")
+    public Set<Long> getTracedBranches() {
+        return generatorDiagnostics.getTracedBranches();
+    }
+
+    /**
+    * Switches tracing on for the branch.
+    */
+    @PutMapping("/trace/{branchId}")
+    public void startTrace(@PathVariable Long branchId) {
+        generatorDiagnostics.startTrace(branchId);
+    }
+
+    /**
+    * Switches tracing off for the branch.
+    */
+    @DeleteMapping("/trace/{branchId}")
+    public void stopTrace(@PathVariable Long branchId) {
+        generatorDiagnostics.stopTrace(branchId);
+    }
+}
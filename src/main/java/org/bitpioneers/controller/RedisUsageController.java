@@ -0,0 +1,47 @@
+package org.bitpioneers.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.bitpioneers.data.RedisUsage;
+import org.bitpioneers.data.WriteBufferStatus;
+import org.bitpioneers.service.CounterWriteBuffer;
+import org.bitpioneers.service.KeyExpiryManager;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+* The RedisUsageController class exposes the Redis usage reported by the KeyExpiryManager and the state of the
+ * CounterWriteBuffer over HTTP, so that the keys written by the generator, the size of the database, the memory
+ * used by Redis and the updates waiting for Redis can be observed while it is running.
+ * @see KeyExpiryManager
+ * @since 1.0
+ * @author Mirolim Mirzayev
+*/
+@Lazy
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/redis")
+public class RedisUsageController {
+    private final KeyExpiryManager keyExpiryManager;
+    private final CounterWriteBuffer counterWriteBuffer;
+
+    /**
+    * Returns the number of keys written by the generator, the number of keys in the whole database and the memory
+     * used by Redis.
+     * @return snapshot of the Redis usage
+    */
+    @GetMapping("/usage")
+    public RedisUsage getUsage() {
+        return keyExpiryManager.getUsage();
+    }
+
+    /**
+    * Returns the state of the buffer of counter updates waiting to be written to Redis.
+     * @return snapshot of the buffer state
+    */
+    @GetMapping("/buffer")
+    public WriteBufferStatus getBufferStatus() {
+        return counterWriteBuffer.getStatus();
+    }
+}
@@ -0,0 +1,73 @@
+package org.bitpioneers.data;
+
+import lombok.Value;
+import org.bitpioneers.types.PersonType;
+import org.bitpioneers.types.ServiceType;
+import org.bitpioneers.types.WeightedSampler;
+
+/**
+* The Branch class is an immutable entry of the DepartmentRegistry. It pairs the department information received
+ * from the bank api with the working hours parsed out of its schedules for juridical entities and for individuals
+ * and with the distributions of service types and person types of the department.
+ *
+ * @see DepartmentInfo
+ * @see WorkingHours
+ * @since 1.0
+ * @author Mirolim Mirzayev
+*/
+@Value
+public class Branch {
+    /**
+    * The department information as it was received from the bank api.
+    */
+    DepartmentInfo info;
+
+    /**
+    * The working hours for juridical entities or null when the schedule could not be parsed.
+    */
+    WorkingHours juridicalHours;
+
+    /**
+    * The working hours for physical individuals or null when the schedule could not be parsed.
+    */
+    WorkingHours individualHours;
+
+    /**
+    * The distribution of the services requested at the department.
+    */
+    WeightedSampler<ServiceType> serviceTypes;
+
+    /**
+    * The distribution of the types of persons visiting the department.
+    */
+    WeightedSampler<PersonType> personTypes;
+
+    /**
+    * Redis keys of the counters of the branch. They are built once, when the branch is loaded, so that the
+     * scheduled tasks do not concatenate them on every run.
+    */
+    String juridicalCurrentKey;
+    String juridicalTotalKey;
+    String individualCurrentKey;
+    String individualTotalKey;
+
+    public Branch(DepartmentInfo info, WorkingHours juridicalHours, WorkingHours individualHours,
+                  WeightedSampler<ServiceType> serviceTypes, WeightedSampler<PersonType> personTypes) {
+        this.info = info;
+        this.juridicalHours = juridicalHours;
+        this.individualHours = individualHours;
+        this.serviceTypes = serviceTypes;
+        this.personTypes = personTypes;
+        this.juridicalCurrentKey = info.getId() + ":" + PersonType.JURIDICAL.getValue() + ":current";
+        this.juridicalTotalKey = info.getId() + ":" + PersonType.JURIDICAL.getValue() + ":total";
+        this.individualCurrentKey = info.getId() + ":" + PersonType.PHYSICAL.getValue() + ":current";
+        this.individualTotalKey = info.getId() + ":" + PersonType.PHYSICAL.getValue() + ":total";
+    }
+
+    /**
+    * A unique identifier for the department.
+    */
+    public Long getId() {
+        return info.getId();
+    }
+}
@@ -0,0 +1,39 @@
+package org.bitpioneers.data;
+
+import lombok.Value;
+
+/**
+* The RedisUsage class is an immutable snapshot of the usage of the Redis data store. The number of keys and the
+ * memory cover the whole database, including keys that do not belong to the generator, and are reported next to the
+ * number of keys and branches the generator itself keeps track of. It is produced by the KeyExpiryManager and is used both for periodic reports in the log and for the usage endpoint.
+* @since 1.0
+ * @author Mirolim Mirzayev
+*/
+@Value
+public class RedisUsage {
+    /**
+    * The number of keys currently alive in the selected Redis database, as reported by DBSIZE. Covers all keys of the
+     * database, not only the ones written by the generator.
+    */
+    long databaseKeys;
+
+    /**
+    * The number of keys written by the generator today, counted from the expiry groups of the branches.
+    */
+    long generatorKeys;
+
+    /**
+    * The number of bytes allocated by the whole Redis instance, as reported by the used_memory field of INFO memory.
+    */
+    long usedMemoryBytes;
+
+    /**
+    * The human-readable form of the allocated memory, as reported by the used_memory_human field of INFO memory.
+    */
+    String usedMemoryHuman;
+
+    /**
+    * The number of branches whose keys currently have an expiry deadline set for today.
+    */
+    int trackedBranches;
+}
@@ -0,0 +1,27 @@
+package org.bitpioneers.data;
+
+import lombok.Value;
+
+import java.time.LocalTime;
+
+/**
+* The WorkingHours class represents the parsed form of a department schedule. Schedules arrive as free text
+ * (e.g. "пн-пт: 09:00-18:00") and are parsed once, when a department is loaded or its schedule changes, so that the
+ * time checks on every tick only compare two LocalTime values.
+ *
+ * @see Branch
+ * @since 1.0
+ * @author Mirolim Mirzayev
+*/
+@Value
+public class WorkingHours {
+    /**
+    * The time at which the department opens.
+    */
+    LocalTime open;
+
+    /**
+    * The time at which the department closes.
+    */
+    LocalTime close;
+}
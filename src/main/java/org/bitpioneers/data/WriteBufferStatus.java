@@ -0,0 +1,33 @@
+package org.bitpioneers.data;
+
+import lombok.Value;
+import org.bitpioneers.types.CircuitState;
+
+/**
+* The WriteBufferStatus class is an immutable snapshot of the state of the CounterWriteBuffer. It shows whether
+ * Redis is currently reachable and how many counter updates are waiting to be written.
+* @since 1.0
+ * @author Mirolim Mirzayev
+*/
+@Value
+public class WriteBufferStatus {
+    /**
+    * The state of the circuit breaker that guards the writes to Redis.
+    */
+    CircuitState circuitState;
+
+    /**
+    * The number of counters whose values have not been written to Redis yet.
+    */
+    int pendingUpdates;
+
+    /**
+    * The number of counters written in a single pipelined batch.
+    */
+    int batchSize;
+
+    /**
+    * The latency of the last successful batch in milliseconds.
+    */
+    long lastLatencyMillis;
+}
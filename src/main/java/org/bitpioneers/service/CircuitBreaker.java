@@ -0,0 +1,80 @@
+package org.bitpioneers.service;
+
+import org.bitpioneers.types.CircuitState;
+
+/**
+* The CircuitBreaker class stops sending requests to Redis after a number of consecutive failures. While the circuit
+ * is open, requests are rejected immediately instead of waiting for a timeout. Once the open period is over, the
+ * circuit becomes half-open and a single request probes Redis while the others are still rejected: a success
+ * closes the circuit and a failure opens it again. Every request that was allowed must report its result through
+ * onSuccess or onFailure.
+ *
+ * @see CircuitState
+ * @since 1.0
+ * @author Mirolim Mirzayev
+*/
+public class CircuitBreaker {
+    private final int failureThreshold;
+    private final long openMillis;
+
+    private CircuitState state = CircuitState.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean probeInFlight;
+
+    /**
+    * @param failureThreshold number of consecutive failures after which the circuit opens
+     * @param openMillis time in milliseconds for which the circuit stays open before a probe is let through
+    */
+    public CircuitBreaker(int failureThreshold, long openMillis) {
+        this.failureThreshold = failureThreshold;
+        this.openMillis = openMillis;
+    }
+
+    /**
+    * Checks whether a request may be sent to Redis. Moves an open circuit to half-open once the open period is over
+     * and lets only one probe through while the circuit is half-open.
+    */
+    public synchronized boolean allowRequest() {
+        if (state == CircuitState.OPEN && System.currentTimeMillis() - openedAt >= openMillis) {
+            state = CircuitState.HALF_OPEN;
+            probeInFlight = false;
+        }
+        if (state == CircuitState.CLOSED) return true;
+        if (state == CircuitState.HALF_OPEN && !probeInFlight) {
+            probeInFlight = true;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+    * Records a successful request and closes the circuit.
+     * @return the state of the circuit before the request
+    */
+    public synchronized CircuitState onSuccess() {
+        CircuitState previous = state;
+        consecutiveFailures = 0;
+        probeInFlight = false;
+        state = CircuitState.CLOSED;
+        return previous;
+    }
+
+    /**
+    * Records a failed request and opens the circuit when the probe failed or the threshold has been reached.
+     * @return the state of the circuit after the request
+    */
+    public synchronized CircuitState onFailure() {
+        consecutiveFailures++;
+        probeInFlight = false;
+        if (state == CircuitState.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            state = CircuitState.OPEN;
+            openedAt = System.currentTimeMillis();
+        }
+        return state;
+    }
+
+    public synchronized CircuitState getState() {
+        return state;
+    }
+}
@@ -0,0 +1,408 @@
+package org.bitpioneers.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.bitpioneers.data.Branch;
+import org.bitpioneers.data.WriteBufferStatus;
+import org.bitpioneers.types.CircuitState;
+import org.bitpioneers.types.DiagnosticEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+* The CounterWriteBuffer class is a resilience layer between the scheduled ticket tasks and Redis. The tasks read and
+ * update the counters through the buffer and never wait for Redis on writes, so a slow or unavailable Redis degrades
+ * the generator instead of stalling the scheduler.
+ * <ul>
+ *     <li>
+ *         Buffering: the last known value of every counter is kept in memory. Updates are written to memory and the
+ *         key is queued for flushing once; further updates of a queued key only replace its value. The number of
+ *         queued keys is bounded and updates of new keys are dropped while the buffer is full.
+ *     </li>
+ *     <li>
+ *         Adaptive batching: queued keys are flushed in pipelined batches. The batch grows while the observed latency
+ *         stays under the target and is halved when it goes over.
+ *     </li>
+ *     <li>
+ *         Circuit breaking: after repeated failures the circuit opens and no requests are sent to Redis until the open
+ *         period is over. While it is open, updates keep accumulating in the buffer.
+ *     </li>
+ *     <li>
+ *         Catch-up flushing: every flush keeps sending batches until the queue is drained or the time budget is
+ *         spent, so the backlog collected during an outage is written out quickly once Redis is back.
+ *     </li>
+ * </ul>
+ *
+ * @see CircuitBreaker
+ * @since 1.0
+ * @author Mirolim Mirzayev
+*/
+@Slf4j
+@Service
+public class CounterWriteBuffer {
+    /**
+    * Returned by get when the counter does not exist.
+    */
+    public static final long ABSENT = 0L;
+
+    /**
+    * Returned by get when the counter is not known yet and cannot be read from Redis at the moment.
+    */
+    public static final long UNAVAILABLE = -1L;
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final KeyExpiryManager keyExpiryManager;
+    private final GeneratorDiagnostics generatorDiagnostics;
+    private final StartupReporter startupReporter;
+    private final CircuitBreaker circuitBreaker;
+
+    private final int maxPending;
+    private final int minBatchSize;
+    private final int maxBatchSize;
+    private final long targetLatencyMillis;
+    private final long flushBudgetMillis;
+
+    /**
+    * Last known values of the counters, keyed by the Redis key.
+    */
+    private final Map<String, CounterState> counters = new ConcurrentHashMap<>();
+
+    /**
+    * Identifiers of the branches that disappeared from the catalogue. Ticks that are still iterating over an older
+     * snapshot of the catalogue must not bring their counters back.
+    */
+    private final Set<Long> retiredBranches = ConcurrentHashMap.newKeySet();
+
+    /**
+    * Keys whose values have not been written to Redis yet. Every key is queued at most once.
+    */
+    private final Queue<String> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+
+    private volatile int batchSize;
+    private volatile long lastLatencyMillis;
+
+    public CounterWriteBuffer(RedisTemplate<String, String> redisTemplate, KeyExpiryManager keyExpiryManager,
+                              GeneratorDiagnostics generatorDiagnostics, StartupReporter startupReporter,
+                              @Value("${app.data-generator.write-buffer.max-pending}") int maxPending,
+                              @Value("${app.data-generator.write-buffer.min-batch-size}") int minBatchSize,
+                              @Value("${app.data-generator.write-buffer.max-batch-size}") int maxBatchSize,
+                              @Value("${app.data-generator.write-buffer.target-latency}") long targetLatencyMillis,
+                              @Value("${app.data-generator.write-buffer.flush-budget}") long flushBudgetMillis,
+                              @Value("${app.data-generator.circuit-breaker.failure-threshold}") int failureThreshold,
+                              @Value("${app.data-generator.circuit-breaker.open-duration}") long openMillis) {
+        this.redisTemplate = redisTemplate;
+        this.keyExpiryManager = keyExpiryManager;
+        this.generatorDiagnostics = generatorDiagnostics;
+        this.startupReporter = startupReporter;
+        this.circuitBreaker = new CircuitBreaker(failureThreshold, openMillis);
+        this.maxPending = maxPending;
+        this.minBatchSize = minBatchSize;
+        this.maxBatchSize = maxBatchSize;
+        this.targetLatencyMillis = targetLatencyMillis;
+        this.flushBudgetMillis = flushBudgetMillis;
+        this.batchSize = minBatchSize;
+    }
+
+    /**
+    * Returns the value of a counter of the branch. A counter that is not known yet is read from Redis once, later
+     * reads are served from memory. Counters expire in memory at the same deadline as in Redis.
+     * @param branch branch the counter belongs to
+     * @param redisKey key of the counter
+     * @return value of the counter, ABSENT when it does not exist or UNAVAILABLE when Redis cannot be reached
+    */
+    public long get(Branch branch, String redisKey) {
+        CounterState state = counters.get(redisKey);
+        if (state == null) {
+            if (retiredBranches.contains(branch.getId())) return ABSENT;
+            state = load(branch, redisKey);
+            if (state == null) return UNAVAILABLE;
+        }
+        synchronized (state) {
+            state.branch = branch;
+            if (state.value != ABSENT && !Instant.now().isBefore(state.expiresAt)) {
+                state.value = ABSENT;
+            }
+            return state.value;
+        }
+    }
+
+    /**
+    * Sets a new value of a counter of the branch. The value is written to Redis by the next flush.
+     * @param branch branch the counter belongs to
+     * @param redisKey key of the counter
+     * @param value new value of the counter
+     * @return false when the update was dropped because the buffer is full or the branch has been retired
+    */
+    public boolean put(Branch branch, String redisKey, long value) {
+        if (retiredBranches.contains(branch.getId())) return false;
+        CounterState state = counters.computeIfAbsent(redisKey, key -> new CounterState(branch, ABSENT));
+        synchronized (state) {
+            if (state.retired || retiredBranches.contains(branch.getId())) {
+                // retire ran between the check above and computeIfAbsent
+                if (state.dirty) {
+                    state.dirty = false;
+                    pendingCount.decrementAndGet();
+                }
+                state.retired = true;
+                counters.remove(redisKey, state);
+                return false;
+            }
+            if (!state.dirty) {
+                if (pendingCount.get() >= maxPending) {
+                    generatorDiagnostics.count(DiagnosticEvent.UPDATE_DROPPED);
+                    return false;
+                }
+                state.dirty = true;
+                pendingCount.incrementAndGet();
+                pending.add(redisKey);
+            }
+            if (state.value == ABSENT || !Instant.now().isBefore(state.expiresAt)) {
+                state.created = true;
+                state.expiresAt = keyExpiryManager.getDeadline(branch);
+            }
+            state.branch = branch;
+            state.value = value;
+            state.version++;
+            return true;
+        }
+    }
+
+    /**
+    * The retire method drops the counters of a branch that disappeared from the catalogue, so they are not written
+     * again, and deletes its keys from Redis.
+     * @param branchId identifier of the branch
+    */
+    public void retire(Long branchId) {
+        retiredBranches.add(branchId);
+        counters.entrySet().removeIf(entry -> {
+            CounterState state = entry.getValue();
+            synchronized (state) {
+                if (!state.branch.getId().equals(branchId)) return false;
+                state.retired = true;
+                if (state.dirty) {
+                    state.dirty = false;
+                    pendingCount.decrementAndGet();
+                }
+                return true;
+            }
+        });
+        try {
+            keyExpiryManager.retire(branchId);
+        } catch (Exception e) {
+            log.error("Could not delete keys of department {}: {}", branchId, e.toString());
+        }
+    }
+
+    /**
+    * The restore method allows counters of a branch that was retired earlier and came back to the catalogue.
+     * @param branchId identifier of the branch
+    */
+    public void restore(Long branchId) {
+        retiredBranches.remove(branchId);
+    }
+
+    /**
+    * The flush method is a scheduled task that writes the queued counters to Redis in pipelined batches until the
+     * queue is drained, the time budget is spent, a batch fails or the circuit is open.
+    */
+    @Scheduled(fixedDelayString = "${app.data-generator.write-buffer.flush-interval}", timeUnit = TimeUnit.MILLISECONDS)
+    public void flush() {
+        long startedAt = System.currentTimeMillis();
+        while (!pending.isEmpty() && System.currentTimeMillis() - startedAt < flushBudgetMillis) {
+            List<FlushEntry> batch = takeBatch();
+            if (batch.isEmpty()) return;
+            if (!circuitBreaker.allowRequest()) {
+                // the circuit is open or another request is probing Redis
+                requeue(batch);
+                return;
+            }
+            if (!writeBatch(batch)) return;
+        }
+    }
+
+    private List<FlushEntry> takeBatch() {
+        List<FlushEntry> batch = new ArrayList<>(batchSize);
+        Instant now = Instant.now();
+        String redisKey;
+        while (batch.size() < batchSize && (redisKey = pending.poll()) != null) {
+            CounterState state = counters.get(redisKey);
+            if (state == null) continue;
+            synchronized (state) {
+                if (state.retired || !state.dirty) continue;
+                if (retiredBranches.contains(state.branch.getId())) {
+                    // created by a tick that raced with retire
+                    state.retired = true;
+                    state.dirty = false;
+                    pendingCount.decrementAndGet();
+                    counters.remove(redisKey, state);
+                    continue;
+                }
+                boolean expire = state.created || !keyExpiryManager.isArmed(state.branch, redisKey);
+                if (expire) {
+                    // the deadline of the branch may have been recalculated, e.g. after its schedule changed
+                    state.expiresAt = keyExpiryManager.getDeadline(state.branch);
+                }
+                if (!now.isBefore(state.expiresAt)) {
+                    // the key has already expired in Redis, writing it would recreate it without an expiry
+                    state.dirty = false;
+                    pendingCount.decrementAndGet();
+                    continue;
+                }
+                batch.add(new FlushEntry(redisKey, state, String.valueOf(state.value), state.version,
+                        expire ? state.expiresAt : null));
+            }
+        }
+        return batch;
+    }
+
+    @SuppressWarnings("unchecked")
+    private boolean writeBatch(List<FlushEntry> batch) {
+        RedisSerializer<String> keySerializer = (RedisSerializer<String>) redisTemplate.getKeySerializer();
+        RedisSerializer<String> valueSerializer = (RedisSerializer<String>) redisTemplate.getValueSerializer();
+        long startedAt = System.nanoTime();
+        try {
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (FlushEntry entry : batch) {
+                    byte[] rawKey = keySerializer.serialize(entry.redisKey);
+                    connection.stringCommands().set(rawKey, valueSerializer.serialize(entry.value),
+                            Expiration.keepTtl(), RedisStringCommands.SetOption.upsert());
+                    if (entry.expireAt != null) {
+                        connection.keyCommands().expireAt(rawKey, entry.expireAt.getEpochSecond());
+                    }
+                }
+                return null;
+            });
+        } catch (Exception e) {
+            requeue(batch);
+            generatorDiagnostics.count(DiagnosticEvent.FLUSH_FAILED);
+            batchSize = minBatchSize;
+            if (circuitBreaker.onFailure() == CircuitState.OPEN) {
+                log.warn("Redis is unavailable, {} updates are buffered: {}", pendingCount.get(), e.toString());
+            }
+            return false;
+        }
+        lastLatencyMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+        if (circuitBreaker.onSuccess() != CircuitState.CLOSED) {
+            log.info("Redis is available again, flushing {} buffered updates", pendingCount.get());
+        }
+        batchSize = lastLatencyMillis <= targetLatencyMillis
+                ? Math.min(maxBatchSize, batchSize + minBatchSize)
+                : Math.max(minBatchSize, batchSize / 2);
+        for (FlushEntry entry : batch) {
+            complete(entry);
+        }
+        startupReporter.ticketEmitted();
+        return true;
+    }
+
+    private void requeue(List<FlushEntry> batch) {
+        for (FlushEntry entry : batch) {
+            pending.add(entry.redisKey);
+        }
+    }
+
+    private void complete(FlushEntry entry) {
+        CounterState state = entry.state;
+        synchronized (state) {
+            // a stale queue entry left over from a retire and restore can put the key into one batch twice
+            if (state.retired || !state.dirty) return;
+            generatorDiagnostics.count(DiagnosticEvent.UPDATE_FLUSHED);
+            if (entry.expireAt != null) {
+                generatorDiagnostics.count(DiagnosticEvent.EXPIRY_SET);
+                keyExpiryManager.armed(state.branch, entry.redisKey);
+                if (state.expiresAt.equals(entry.expireAt)) state.created = false;
+            }
+            if (state.version == entry.version) {
+                state.dirty = false;
+                pendingCount.decrementAndGet();
+            } else {
+                pending.add(entry.redisKey);
+            }
+        }
+    }
+
+    /**
+    * Reads a counter that is not known yet from Redis. Returns null when the circuit is open or the read fails.
+    */
+    private CounterState load(Branch branch, String redisKey) {
+        if (!circuitBreaker.allowRequest()) return null;
+        String value;
+        try {
+            value = redisTemplate.opsForValue().get(redisKey);
+        } catch (Exception e) {
+            circuitBreaker.onFailure();
+            log.error("Could not read {}: {}", redisKey, e.toString());
+            return null;
+        }
+        circuitBreaker.onSuccess();
+        CounterState state = new CounterState(branch, value == null ? ABSENT : Long.parseLong(value));
+        state.expiresAt = keyExpiryManager.getDeadline(branch);
+        CounterState previous = counters.putIfAbsent(redisKey, state);
+        if (previous == null && retiredBranches.contains(branch.getId())) {
+            counters.remove(redisKey, state);
+        }
+        return previous == null ? state : previous;
+    }
+
+    /**
+    * Returns the current state of the buffer.
+     * @see WriteBufferStatus
+    */
+    public WriteBufferStatus getStatus() {
+        return new WriteBufferStatus(circuitBreaker.getState(), pendingCount.get(), batchSize, lastLatencyMillis);
+    }
+
+    /**
+    * The in-memory state of a single counter. Guarded by its own monitor.
+    */
+    private static final class CounterState {
+        private Branch branch;
+        private long value;
+        private Instant expiresAt = Instant.MAX;
+        private long version;
+        private boolean dirty;
+        private boolean created;
+        private boolean retired;
+
+        private CounterState(Branch branch, long value) {
+            this.branch = branch;
+            this.value = value;
+        }
+    }
+
+    /**
+    * A counter taken from the queue together with the value and version that are being written.
+    */
+    private static final class FlushEntry {
+        private final String redisKey;
+        private final CounterState state;
+        private final String value;
+        private final long version;
+        private final Instant expireAt;
+
+        private FlushEntry(String redisKey, CounterState state, String value, long version, Instant expireAt) {
+            this.redisKey = redisKey;
+            this.state = state;
+            this.value = value;
+            this.version = version;
+            this.expireAt = expireAt;
+        }
+    }
+}
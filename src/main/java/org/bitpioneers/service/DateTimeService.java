@@ -1,14 +1,15 @@
 package org.bitpioneers.service;
 
-import lombok.extern.slf4j.Slf4j;
+import org.bitpioneers.data.WorkingHours;
 import org.bitpioneers.exception.ParseException;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import java.time.LocalDateTime;
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
 import java.time.LocalTime;
+import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
-import java.time.temporal.ChronoUnit;
-import java.util.Calendar;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -20,7 +21,6 @@ import java.util.regex.Pattern;
  * @author Mirolim Mirzayev
 */
 
-@Slf4j
 @Service
 public class DateTimeService {
 
@@ -31,22 +31,15 @@ public class DateTimeService {
     boolean checkFlag;
 
     /**
-    * A private method that maps an integer day of the week to its corresponding string representation (e.g., "MONDAY").
-    * Used to check if the current day is a weekend day.
+    * Formatters of the time formats used in schedules, e.g. "09:00" and "09.00".
     */
-    private String getDayOfWeekString(int dayOfWeek) {
-        log.debug("Calling method getDayOfWeekString()");
-        return switch (dayOfWeek) {
-            case Calendar.SUNDAY -> "SUNDAY";
-            case Calendar.MONDAY -> "MONDAY";
-            case Calendar.TUESDAY -> "TUESDAY";
-            case Calendar.WEDNESDAY -> "WEDNESDAY";
-            case Calendar.THURSDAY -> "THURSDAY";
-            case Calendar.FRIDAY -> "FRIDAY";
-            case Calendar.SATURDAY -> "SATURDAY";
-            default -> "Ошибка";
-        };
-    }
+    private static final DateTimeFormatter COLON_FORMATTER = DateTimeFormatter.ofPattern("HH:mm");
+    private static final DateTimeFormatter DOT_FORMATTER = DateTimeFormatter.ofPattern("HH.mm");
+
+    /**
+    * A pattern of a time range within a schedule, e.g. "09:00-18:00" or "09.00-18.00".
+    */
+    private static final Pattern SCHEDULE_PATTERN = Pattern.compile("(\\d\\d[:.]\\d\\d-\\d\\d[:.]\\d\\d)");
 
     /**
     * A public method that checks if the current day is allowed for certain operations based on the checkFlag.
@@ -54,63 +47,54 @@ public class DateTimeService {
     */
     public boolean isAllowedByDay(){
         if(checkFlag) {
-            log.debug("Calling method isAllowedByDay()");
-            Calendar calendar = Calendar.getInstance();
-            String dayOfWeekString = getDayOfWeekString(calendar.get(Calendar.DAY_OF_WEEK));
-            return !dayOfWeekString.equals("SATURDAY") && !dayOfWeekString.equals("SUNDAY");
+            DayOfWeek dayOfWeek = LocalDate.now().getDayOfWeek();
+            return dayOfWeek != DayOfWeek.SATURDAY && dayOfWeek != DayOfWeek.SUNDAY;
         } else {
             return true;
         }
     }
 
+    /**
+    * A public method that parses the working hours out of a schedule of a department (e.g. "пн-пт: 09:00-18:00").
+     * The result is kept by the DepartmentRegistry, so a schedule is parsed only when it is loaded or changed.
+     * @return parsed working hours or null when the schedule does not contain any time range
+     * @see WorkingHours
+    */
+    public WorkingHours parseSchedule(String timeLine) {
+        if (timeLine == null) return null;
+        Matcher matcher = SCHEDULE_PATTERN.matcher(timeLine);
+        if (!matcher.find()) return null;
+        String[] fromOpenToClose = matcher.group(1).split("-");
+        return new WorkingHours(parseTime(fromOpenToClose[0]), parseTime(fromOpenToClose[1]));
+    }
+
     /** A public method that checks if the current time is allowed for certain operations based on the checkFlag.
-    * It compares the current time against a provided time range.*
+    * It checks that the current time is within the provided working hours.
     *
     */
-    public boolean isAllowedByTime(String timeLine){
+    public boolean isAllowedByTime(WorkingHours workingHours){
         if(checkFlag) {
-            log.debug("Calling method isAllowedByTime()");
-            Pattern pattern = Pattern.compile("\\d\\d[:.]\\d\\d\\-\\d\\d[:.]\\d\\d");
-            Matcher matcher = pattern.matcher(timeLine);
-            if (matcher.find()) {
-                String workTime = matcher.group(1);
-                String[] fromOpenToClose = workTime.split("-");
-                for (String s : fromOpenToClose) {
-                    LocalDateTime currentLocalDateTime = LocalDateTime.now();
-                    LocalTime parsedDateTime = parseTime(s);
-                    long diff = currentLocalDateTime.until(parsedDateTime, ChronoUnit.MINUTES);
-                    return diff > 0;
-                }
-                return false;
-            } else {
-                log.error("Exception was thrown");
-                throw new ParseException("Could not find any matchers:" + timeLine + " for this pattern " + pattern);
-            }
+            if (workingHours == null) return false;
+            LocalTime now = LocalTime.now();
+            return !now.isBefore(workingHours.getOpen()) && now.isBefore(workingHours.getClose());
         } else {
             return true;
         }
     }
 
     /**
-    *  A public method that calculates the time remaining until a specified time based on the provided time range.
-     *  Used to determine the time to live for a resource.
+    *  A public method that calculates the moment at which the keys of a department should expire.
+     *  When checks are enabled it is the closing time of the provided working hours, otherwise (or when the closing
+     *  time has already passed) it is the end of the current day.
     */
-    public long getTimeToLive(String timeLine) {
-        if(checkFlag) {
-            log.debug("Calling method getTimeToLive()");
-            Pattern pattern = Pattern.compile("\\d\\d[:.]\\d\\d\\-\\d\\d[:.]\\d\\d");
-            Matcher matcher = pattern.matcher(timeLine);
-            if (matcher.find()) {
-                String workTime = matcher.group(1);
-                String s = workTime.split("-")[1];
-                LocalTime localTime = LocalTime.now();
-                LocalTime parsedTime = parseTime(s);
-                return localTime.until(parsedTime, ChronoUnit.MINUTES);
-            } else {
-                throw new RuntimeException();
-            }
+    public Instant getExpiryDeadline(WorkingHours workingHours) {
+        LocalDate today = LocalDate.now();
+        Instant endOfDay = today.plusDays(1).atStartOfDay(ZoneId.systemDefault()).toInstant();
+        if(checkFlag && workingHours != null) {
+            Instant closingTime = today.atTime(workingHours.getClose()).atZone(ZoneId.systemDefault()).toInstant();
+            return closingTime.isAfter(Instant.now()) ? closingTime : endOfDay;
         } else {
-            return 60L;
+            return endOfDay;
         }
     }
 
@@ -119,17 +103,10 @@ public class DateTimeService {
      * It handles different time formats (e.g., "HH:mm" or "HH.mm").
     */
     private LocalTime parseTime(String time){
-        log.debug("Calling method parseTime()");
         try {
-            DateTimeFormatter dateTimeFormatter;
-            if (time.charAt(3) == ':'){
-                dateTimeFormatter = DateTimeFormatter.ofPattern("HH:mm");
-            }else {
-                dateTimeFormatter = DateTimeFormatter.ofPattern("HH.mm");
-            }
-            return LocalTime.parse(time, dateTimeFormatter);
+            return LocalTime.parse(time, time.charAt(2) == ':' ? COLON_FORMATTER : DOT_FORMATTER);
         }catch (Exception e){
-            throw new RuntimeException(e);
+            throw new ParseException("Could not parse time: " + time);
         }
     }
 }
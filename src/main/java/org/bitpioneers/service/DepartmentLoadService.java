@@ -1,14 +1,14 @@
 package org.bitpioneers.service;
 
 import lombok.extern.slf4j.Slf4j;
-import org.bitpioneers.data.DepartmentInfo;
+import org.bitpioneers.data.Branch;
+import org.bitpioneers.data.WorkingHours;
+import org.bitpioneers.types.DiagnosticEvent;
 import org.bitpioneers.types.PersonType;
-import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
-import java.util.List;
-import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 
 
@@ -30,10 +30,14 @@ import java.util.concurrent.TimeUnit;
  *    </li>
  *    <li>
  *        It offers methods for time-based validation to verify whether ticket issuance should occur at the current day
- *        and time, as well as time-to-live calculations to ensure data validity.
+ *        and time. The counters are not given a time-to-live of their own: the CounterWriteBuffer writes them with
+ *        the closing-time deadline of the branch provided by the KeyExpiryManager, so they expire when the branch
+ *        closes for the day.
  *    </li>
  * </ul>
  *
+ * @see KeyExpiryManager
+ * @see CounterWriteBuffer
  * @since 1.0
  * @author Mirolim Mirzayev
  *
@@ -41,32 +45,35 @@ import java.util.concurrent.TimeUnit;
 @Slf4j
 @Service
 public class DepartmentLoadService {
-    private final RedisTemplate<String, String> redisTemplate;
-    private final List<DepartmentInfo> departmentInfoList;
-    private final Random random;
+    private final CounterWriteBuffer counterWriteBuffer;
+    private final DepartmentRegistry departmentRegistry;
     private final DateTimeService dateTimeService;
+    private final GeneratorDiagnostics generatorDiagnostics;
 
 
      /**
      * Constructor initializes and sets up the DepartmentLoadService class by configuring its dependencies
      * and preparing it for use in a larger software system. This document provides an overview of the
      * constructor's purpose, its parameters, and the actions it performs during instantiation
-     * @param redisTemplate  An instance of the RedisTemplate class specialized for working with key-value
-      *                      pairs of type String. This parameter represents the Redis data store where
-      *                      department-related information will be stored and retrieved.
-      * @param departmentService  An instance of the DepartmentService class that provides access to
-      *                           department-specific data. This parameter is used to load a list of
-      *                           department information, which will be processed by the DepartmentLoadService.
+     * @param counterWriteBuffer  An instance of the CounterWriteBuffer class through which the counters are read
+      *                            and updated. It writes them to the Redis data store in the background, so the
+      *                            scheduled tasks are not stalled when Redis is slow or unavailable.
+      * @param departmentRegistry  An instance of the DepartmentRegistry class that holds the current catalogue
+      *                            of departments. Every run of a scheduled task works with the snapshot of the
+      *                            catalogue that was current when the run started.
       * @param dateTimeService  An instance of the DateTimeService class or a related service responsible for date
       *                         and time-related operations. This parameter is utilized to handle time-based
       *                         validations and calculations within the DepartmentLoadService.
+      * @param generatorDiagnostics  An instance of the GeneratorDiagnostics class that counts the events of the
+      *                              scheduled tasks and traces the branches for which tracing is switched on.
      */
-    public DepartmentLoadService(RedisTemplate<String, String> redisTemplate,
-                                 DepartmentService departmentService, DateTimeService dateTimeService) {
-        this.redisTemplate = redisTemplate;
-        this.departmentInfoList = departmentService.load();
+    public DepartmentLoadService(CounterWriteBuffer counterWriteBuffer,
+                                 DepartmentRegistry departmentRegistry, DateTimeService dateTimeService,
+                                 GeneratorDiagnostics generatorDiagnostics) {
+        this.counterWriteBuffer = counterWriteBuffer;
+        this.departmentRegistry = departmentRegistry;
         this.dateTimeService = dateTimeService;
-        random = new Random();
+        this.generatorDiagnostics = generatorDiagnostics;
     }
 
 
@@ -79,32 +86,41 @@ public class DepartmentLoadService {
     @Scheduled(fixedDelayString = "#{T(java.util.concurrent.ThreadLocalRandom).current().nextInt(1, 60)}",
             timeUnit = TimeUnit.SECONDS)
     public void addJuridicalTicket() {
-        log.info("Ticket was created for juridical person");
-        departmentInfoList.forEach(departmentInfo -> {
-            Long id = departmentInfo.getId();
-            String timeLine = departmentInfo.getScheduleJurL();
+        generatorDiagnostics.count(DiagnosticEvent.TICK);
+        for (Branch branch : departmentRegistry.getBranches()) {
+            WorkingHours workingHours = branch.getJuridicalHours();
             try {
-                Thread.sleep(random.nextInt(1, 60));
-                String redisKey = id + ":" + PersonType.JURIDICAL.getValue() + ":current";
-                if (!dateTimeService.isAllowedByDay() || !dateTimeService.isAllowedByTime(timeLine)) return;
-                long timeToLive = dateTimeService.getTimeToLive(timeLine);
-                if (redisTemplate.opsForValue().get(redisKey) == null)
-                    redisTemplate.opsForValue().set(redisKey, "1", timeToLive, TimeUnit.MINUTES);
-                else {
-                    String tempvalue = redisTemplate.opsForValue().get(id + ":" + PersonType.JURIDICAL.getValue() + ":total");
-                    if (tempvalue == null) return;
-                    int totalTickets = Integer.parseInt(tempvalue);
-                    String value = redisTemplate.opsForValue().get(redisKey);
-                    if (value == null) return;
-                    int oldValue = Integer.parseInt(value);
-                    if (oldValue < totalTickets) {
-                        redisTemplate.opsForValue().set(redisKey, String.valueOf(++oldValue), timeToLive, TimeUnit.MINUTES);
-                    }
+                if (!isVisitedBy(branch, PersonType.JURIDICAL)) continue;
+                Thread.sleep(ThreadLocalRandom.current().nextInt(1, 60));
+                String redisKey = branch.getJuridicalCurrentKey();
+                if (!dateTimeService.isAllowedByDay() || !dateTimeService.isAllowedByTime(workingHours)) {
+                    generatorDiagnostics.count(DiagnosticEvent.BRANCH_CLOSED);
+                    continue;
                 }
+                long current = counterWriteBuffer.get(branch, redisKey);
+                if (current == CounterWriteBuffer.UNAVAILABLE) {
+                    generatorDiagnostics.count(DiagnosticEvent.REDIS_UNAVAILABLE);
+                    continue;
+                }
+                long newValue;
+                if (current == CounterWriteBuffer.ABSENT) {
+                    newValue = 1;
+                } else {
+                    long total = counterWriteBuffer.get(branch, branch.getJuridicalTotalKey());
+                    if (total <= CounterWriteBuffer.ABSENT || current >= total) continue;
+                    newValue = current + 1;
+                }
+                if (counterWriteBuffer.put(branch, redisKey, newValue)) {
+                    record(branch, redisKey, newValue, DiagnosticEvent.JURIDICAL_TICKET);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
             } catch (Exception e) {
-                throw new RuntimeException(e);
+                generatorDiagnostics.count(DiagnosticEvent.BRANCH_FAILED);
+                log.error(e.toString());
             }
-        });
+        }
     }
 
     /**
@@ -116,28 +132,35 @@ public class DepartmentLoadService {
     @Scheduled(fixedDelayString = "#{T(java.util.concurrent.ThreadLocalRandom).current().nextInt(1, 50)}",
             timeUnit = TimeUnit.SECONDS)
     public void loadJuridicalAllTicket() {
-        log.info("Load juridical ticket to all tickets");
-        departmentInfoList.forEach(departmentInfo -> {
-            Long id = departmentInfo.getId();
-            String timeLine = departmentInfo.getScheduleJurL();
+        generatorDiagnostics.count(DiagnosticEvent.TICK);
+        for (Branch branch : departmentRegistry.getBranches()) {
+            WorkingHours workingHours = branch.getJuridicalHours();
             try {
-                Thread.sleep(random.nextInt(1, 60));
-                String redisKey = id + ":" + PersonType.JURIDICAL.getValue() + ":total";
-                if (!dateTimeService.isAllowedByDay() || !dateTimeService.isAllowedByTime(timeLine)) return;
-                long timeToLive = dateTimeService.getTimeToLive(timeLine);
-                if (redisTemplate.opsForValue().get(redisKey) == null)
-                    redisTemplate.opsForValue().set(redisKey, "1", timeToLive, TimeUnit.MINUTES);
-                else {
-                    String value = redisTemplate.opsForValue().get(redisKey);
-                    if (value == null) return;
-                    int oldValue = Integer.parseInt(value);
-                    redisTemplate.opsForValue().set(redisKey,
-                            String.valueOf(random.nextInt(oldValue, oldValue + 10)), timeToLive, TimeUnit.MINUTES);
+                if (!isVisitedBy(branch, PersonType.JURIDICAL)) continue;
+                Thread.sleep(ThreadLocalRandom.current().nextInt(1, 60));
+                String redisKey = branch.getJuridicalTotalKey();
+                if (!dateTimeService.isAllowedByDay() || !dateTimeService.isAllowedByTime(workingHours)) {
+                    generatorDiagnostics.count(DiagnosticEvent.BRANCH_CLOSED);
+                    continue;
+                }
+                long total = counterWriteBuffer.get(branch, redisKey);
+                if (total == CounterWriteBuffer.UNAVAILABLE) {
+                    generatorDiagnostics.count(DiagnosticEvent.REDIS_UNAVAILABLE);
+                    continue;
+                }
+                long newValue = total == CounterWriteBuffer.ABSENT ? 1
+                        : ThreadLocalRandom.current().nextLong(total, total + 10);
+                if (counterWriteBuffer.put(branch, redisKey, newValue)) {
+                    record(branch, redisKey, newValue, DiagnosticEvent.JURIDICAL_TOTAL);
                 }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
             } catch (Exception e) {
+                generatorDiagnostics.count(DiagnosticEvent.BRANCH_FAILED);
                 log.error(e.toString());
             }
-        });
+        }
     }
 
     /**
@@ -149,31 +172,41 @@ public class DepartmentLoadService {
     @Scheduled(fixedDelayString = "#{T(java.util.concurrent.ThreadLocalRandom).current().nextInt(1, 15)}",
             timeUnit = TimeUnit.SECONDS)
     public void addIndividualTicket() {
-        log.info("Ticket was created for physical person");
-        departmentInfoList.forEach(departmentInfo -> {
-            Long id = departmentInfo.getId();
-            String timeLine = departmentInfo.getScheduleJurL();
+        generatorDiagnostics.count(DiagnosticEvent.TICK);
+        for (Branch branch : departmentRegistry.getBranches()) {
+            WorkingHours workingHours = branch.getIndividualHours();
             try {
-                Thread.sleep(random.nextInt(1, 60));
-                String redisKey = id + ":" + PersonType.PHYSICAL.getValue() + ":current";
-                if (!dateTimeService.isAllowedByDay() || !dateTimeService.isAllowedByTime(timeLine)) return;
-                long timeToLive = dateTimeService.getTimeToLive(timeLine);
-                if (redisTemplate.opsForValue().get(redisKey) == null)
-                    redisTemplate.opsForValue().set(redisKey, "1", timeToLive, TimeUnit.MINUTES);
-                else {
-                    String value = redisTemplate.opsForValue().get(id + ":" + PersonType.PHYSICAL.getValue() + ":total");
-                    String valueToCheck = redisTemplate.opsForValue().get(redisKey);
-                    if (value == null || valueToCheck == null) return;
-                    int totalPhysicalTickets = Integer.parseInt(value);
-                    int oldValue = Integer.parseInt(valueToCheck);
-                    if (oldValue < totalPhysicalTickets) {
-                        redisTemplate.opsForValue().set(redisKey, String.valueOf(++oldValue), timeToLive, TimeUnit.MINUTES);
-                    }
+                if (!isVisitedBy(branch, PersonType.PHYSICAL)) continue;
+                Thread.sleep(ThreadLocalRandom.current().nextInt(1, 60));
+                String redisKey = branch.getIndividualCurrentKey();
+                if (!dateTimeService.isAllowedByDay() || !dateTimeService.isAllowedByTime(workingHours)) {
+                    generatorDiagnostics.count(DiagnosticEvent.BRANCH_CLOSED);
+                    continue;
                 }
+                long current = counterWriteBuffer.get(branch, redisKey);
+                if (current == CounterWriteBuffer.UNAVAILABLE) {
+                    generatorDiagnostics.count(DiagnosticEvent.REDIS_UNAVAILABLE);
+                    continue;
+                }
+                long newValue;
+                if (current == CounterWriteBuffer.ABSENT) {
+                    newValue = 1;
+                } else {
+                    long total = counterWriteBuffer.get(branch, branch.getIndividualTotalKey());
+                    if (total <= CounterWriteBuffer.ABSENT || current >= total) continue;
+                    newValue = current + 1;
+                }
+                if (counterWriteBuffer.put(branch, redisKey, newValue)) {
+                    record(branch, redisKey, newValue, DiagnosticEvent.INDIVIDUAL_TICKET);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
             } catch (Exception e) {
-                throw new RuntimeException(e);
+                generatorDiagnostics.count(DiagnosticEvent.BRANCH_FAILED);
+                log.error(e.toString());
             }
-        });
+        }
     }
 
 
@@ -186,27 +219,54 @@ public class DepartmentLoadService {
     @Scheduled(fixedDelayString = "#{T(java.util.concurrent.ThreadLocalRandom).current().nextInt(1, 10)}",
             timeUnit = TimeUnit.SECONDS)
     public void loadIndividualAllTicket() {
-        log.info("Load physical ticket to all tickets");
-        departmentInfoList.forEach(departmentInfo -> {
-            Long id = departmentInfo.getId();
-            String timeLine = departmentInfo.getScheduleJurL();
+        generatorDiagnostics.count(DiagnosticEvent.TICK);
+        for (Branch branch : departmentRegistry.getBranches()) {
+            WorkingHours workingHours = branch.getIndividualHours();
             try {
-                Thread.sleep(random.nextInt(1, 60));
-                String redisKey = id + ":" + PersonType.PHYSICAL.getValue() + ":total";
-                if (!dateTimeService.isAllowedByDay() || !dateTimeService.isAllowedByTime(timeLine)) return;
-                long timeToLive = dateTimeService.getTimeToLive(timeLine);
-                if (redisTemplate.opsForValue().get(redisKey) == null)
-                    redisTemplate.opsForValue().set(redisKey, "1", timeToLive, TimeUnit.MINUTES);
-                else {
-                    String value = redisTemplate.opsForValue().get(redisKey);
-                    if (value == null) return;
-                    int oldValue = Integer.parseInt(value);
-                    redisTemplate.opsForValue().set(redisKey,
-                            String.valueOf(random.nextInt(oldValue, oldValue + 20)), timeToLive, TimeUnit.MINUTES);
+                if (!isVisitedBy(branch, PersonType.PHYSICAL)) continue;
+                Thread.sleep(ThreadLocalRandom.current().nextInt(1, 60));
+                String redisKey = branch.getIndividualTotalKey();
+                if (!dateTimeService.isAllowedByDay() || !dateTimeService.isAllowedByTime(workingHours)) {
+                    generatorDiagnostics.count(DiagnosticEvent.BRANCH_CLOSED);
+                    continue;
+                }
+                long total = counterWriteBuffer.get(branch, redisKey);
+                if (total == CounterWriteBuffer.UNAVAILABLE) {
+                    generatorDiagnostics.count(DiagnosticEvent.REDIS_UNAVAILABLE);
+                    continue;
                 }
+                long newValue = total == CounterWriteBuffer.ABSENT ? 1
+                        : ThreadLocalRandom.current().nextLong(total, total + 20);
+                if (counterWriteBuffer.put(branch, redisKey, newValue)) {
+                    record(branch, redisKey, newValue, DiagnosticEvent.INDIVIDUAL_TOTAL);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
             } catch (Exception e) {
-                throw new RuntimeException(e);
+                generatorDiagnostics.count(DiagnosticEvent.BRANCH_FAILED);
+                log.error(e.toString());
             }
-        });
+        }
+    }
+
+    /**
+    * Draws the type of the next visitor from the distribution of the branch and checks whether it is the type the
+     * task issues tickets for. Branches that serve only one type of persons are never visited by the other one.
+    */
+    private boolean isVisitedBy(Branch branch, PersonType personType) {
+        if (branch.getPersonTypes().sample() == personType) return true;
+        generatorDiagnostics.count(DiagnosticEvent.OTHER_PERSON_TYPE);
+        return false;
+    }
+
+    /**
+    * Counts the write into the diagnostics and traces it when tracing is switched on for the branch.
+    */
+    private void record(Branch branch, String redisKey, long value, DiagnosticEvent event) {
+        generatorDiagnostics.count(event);
+        if (generatorDiagnostics.isTraced(branch.getId())) {
+            generatorDiagnostics.trace(branch.getId(), redisKey, value);
+        }
     }
 }
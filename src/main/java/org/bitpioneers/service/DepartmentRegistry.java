@@ -0,0 +1,155 @@
+package org.bitpioneers.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.bitpioneers.data.Branch;
+import org.bitpioneers.data.DepartmentInfo;
+import org.bitpioneers.data.WorkingHours;
+import org.bitpioneers.exception.ParseException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+* The DepartmentRegistry class holds the catalogue of bank departments the generator works with. The catalogue is
+ * loaded on startup and then periodically refreshed from the bank api, so new and closed branches are picked up
+ * without restarting the process.
+ * <ul>
+ *     <li>
+ *         Snapshots: the catalogue is an immutable list of branches kept behind a copy-on-write reference. A refresh
+ *         builds a new list and swaps it in atomically, so ticks that are in progress keep iterating over the list
+ *         they started with and are never blocked.
+ *     </li>
+ *     <li>
+ *         Diffing: branches that did not change are carried over as they are, and only changed schedules are parsed
+ *         again. Keys of removed branches are retired, and expiry deadlines of branches with changed schedules are
+ *         calculated again.
+ *     </li>
+ * </ul>
+ *
+ * @see Branch
+ * @since 1.0
+ * @author Mirolim Mirzayev
+*/
+@Slf4j
+@Service
+public class DepartmentRegistry {
+    private final DepartmentService departmentService;
+    private final DateTimeService dateTimeService;
+    private final KeyExpiryManager keyExpiryManager;
+    private final CounterWriteBuffer counterWriteBuffer;
+    private final ServiceDistributionService serviceDistributionService;
+
+    /**
+    * The current snapshot of the catalogue.
+    */
+    private final AtomicReference<List<Branch>> branches;
+
+    /**
+    * Constructor loads the initial catalogue of departments.
+     * @param departmentService service used to load the departments from the bank api
+     * @param dateTimeService service used to parse the schedules of the departments
+     * @param keyExpiryManager manager whose expiry deadlines are recalculated for branches with changed schedules
+     * @param counterWriteBuffer buffer whose counters are retired for removed branches and restored for added ones
+     * @param serviceDistributionService service used to build the distributions of service and person types
+    */
+    public DepartmentRegistry(DepartmentService departmentService, DateTimeService dateTimeService,
+                              KeyExpiryManager keyExpiryManager, CounterWriteBuffer counterWriteBuffer,
+                              ServiceDistributionService serviceDistributionService) {
+        this.departmentService = departmentService;
+        this.dateTimeService = dateTimeService;
+        this.keyExpiryManager = keyExpiryManager;
+        this.counterWriteBuffer = counterWriteBuffer;
+        this.serviceDistributionService = serviceDistributionService;
+        this.branches = new AtomicReference<>(build(departmentService.load(), Map.of()));
+    }
+
+    /**
+    * Returns the current snapshot of the catalogue. The returned list is immutable and is not affected by refreshes.
+     * @return list of branches
+    */
+    public List<Branch> getBranches() {
+        return branches.get();
+    }
+
+    /**
+    * The refresh method is a scheduled task that loads the departments from the bank api again, diffs them against
+     * the current snapshot and swaps the new snapshot in. When the api is unavailable the current snapshot is kept.
+    */
+    @Scheduled(fixedDelayString = "${app.data-generator.catalogue-refresh-interval}",
+            initialDelayString = "${app.data-generator.catalogue-refresh-interval}",
+            timeUnit = TimeUnit.MINUTES)
+    public void refresh() {
+        List<DepartmentInfo> departments;
+        try {
+            departments = departmentService.load();
+        } catch (Exception e) {
+            log.error("Could not refresh departments, keeping the current catalogue: {}", e.toString());
+            return;
+        }
+        Map<Long, Branch> current = new HashMap<>();
+        branches.get().forEach(branch -> current.put(branch.getId(), branch));
+        List<Branch> refreshed = build(departments, current);
+        branches.set(refreshed);
+
+        int added = 0;
+        int changed = 0;
+        for (Branch branch : refreshed) {
+            Branch previous = current.remove(branch.getId());
+            if (previous == null) {
+                added++;
+                counterWriteBuffer.restore(branch.getId());
+            } else if (previous != branch) {
+                changed++;
+                if (isRescheduled(previous, branch)) keyExpiryManager.reschedule(branch.getId());
+            }
+        }
+        current.keySet().forEach(counterWriteBuffer::retire);
+        log.info("Departments refreshed: {} added, {} changed, {} removed", added, changed, current.size());
+    }
+
+    /**
+    * Builds an immutable snapshot out of the loaded departments, reusing the branches of the previous snapshot that
+     * did not change and the parsed working hours of the schedules that did not change.
+    */
+    private List<Branch> build(List<DepartmentInfo> departments, Map<Long, Branch> previous) {
+        List<Branch> result = new ArrayList<>(departments.size());
+        for (DepartmentInfo info : departments) {
+            Branch old = previous.get(info.getId());
+            if (old != null && old.getInfo().equals(info)) {
+                result.add(old);
+                continue;
+            }
+            WorkingHours juridicalHours = old != null
+                    && Objects.equals(old.getInfo().getScheduleJurL(), info.getScheduleJurL())
+                    ? old.getJuridicalHours() : parseSchedule(info.getId(), info.getScheduleJurL());
+            WorkingHours individualHours = old != null
+                    && Objects.equals(old.getInfo().getScheduleFl(), info.getScheduleFl())
+                    ? old.getIndividualHours() : parseSchedule(info.getId(), info.getScheduleFl());
+            result.add(new Branch(info, juridicalHours, individualHours,
+                    serviceDistributionService.getServiceTypes(info.getSpecial()),
+                    serviceDistributionService.getPersonTypes(info.getSpecial())));
+        }
+        return List.copyOf(result);
+    }
+
+    private static boolean isRescheduled(Branch previous, Branch branch) {
+        return !Objects.equals(previous.getInfo().getScheduleJurL(), branch.getInfo().getScheduleJurL())
+                || !Objects.equals(previous.getInfo().getScheduleFl(), branch.getInfo().getScheduleFl());
+    }
+
+    private WorkingHours parseSchedule(Long id, String schedule) {
+        try {
+            return dateTimeService.parseSchedule(schedule);
+        } catch (ParseException e) {
+            log.warn("Could not parse schedule of department {}: {}", id, e.getMessage());
+            return null;
+        }
+    }
+}
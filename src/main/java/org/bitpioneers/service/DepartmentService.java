@@ -12,6 +12,7 @@ import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.time.Duration;
 import java.util.List;
 
 /**
@@ -31,6 +32,17 @@ public class DepartmentService {
     * */
     private final String vtbDepartsUrl = "https://headless-cms3.vtb.ru/projects/atm/models/default/items/departments";
 
+    /**
+    * Timeouts of the requests to the bank api. The departments are reloaded periodically on the shared scheduler,
+    * so a stalled request must not hold a scheduler thread forever.
+    * */
+    private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(10);
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .connectTimeout(CONNECT_TIMEOUT)
+            .build();
+
     private final ObjectMapper objectMapper;
 
     /**
@@ -42,13 +54,17 @@ public class DepartmentService {
     public List<DepartmentInfo> load(){
         log.info("Loading departments");
         try {
-            HttpClient client = HttpClient.newHttpClient();
             HttpRequest httpRequest = HttpRequest.newBuilder()
                     .uri(URI.create(vtbDepartsUrl))
+                    .timeout(REQUEST_TIMEOUT)
                     .build();
             HttpResponse<String> httpResponse = client.send(httpRequest, HttpResponse.BodyHandlers.ofString());
-            log.debug(httpResponse.body());
-            return objectMapper.readValue(httpResponse.body(), BranchesInfo.class).getBranches();
+            String body = httpResponse.body();
+            log.debug("Received {} characters of departments", body.length());
+            if (log.isTraceEnabled()) {
+                log.trace(body);
+            }
+            return objectMapper.readValue(body, BranchesInfo.class).getBranches();
         } catch (IOException | InterruptedException e) {
             throw new RuntimeException(e);
         }
@@ -0,0 +1,128 @@
+package org.bitpioneers.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.bitpioneers.types.DiagnosticEvent;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+* The GeneratorDiagnostics class collects diagnostics of the generator hot path without putting pressure on the
+ * log appenders and the garbage collector.
+ * <ul>
+ *     <li>
+ *         Counters: events of the hot path are counted into lock-free counters and written to the log as a single
+ *         summary line per interval.
+ *     </li>
+ *     <li>
+ *         Trace mode: detailed per-branch log lines are written only for branches for which tracing was switched on
+ *         at runtime.
+ *     </li>
+ * </ul>
+ *
+ * @see DiagnosticEvent
+ * @since 1.0
+ * @author Mirolim Mirzayev
+*/
+@Slf4j
+@Service
+public class GeneratorDiagnostics {
+    private static final DiagnosticEvent[] EVENTS = DiagnosticEvent.values();
+
+    /**
+    * Counters of the events since the last summary, indexed by the ordinal of an event.
+    */
+    private final LongAdder[] counters = new LongAdder[EVENTS.length];
+
+    /**
+    * Identifiers of the branches for which tracing is switched on.
+    */
+    private final Set<Long> tracedBranches = ConcurrentHashMap.newKeySet();
+
+    public GeneratorDiagnostics() {
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] = new LongAdder();
+        }
+    }
+
+    /**
+    * Counts a single occurrence of the event.
+    */
+    public void count(DiagnosticEvent event) {
+        counters[event.ordinal()].increment();
+    }
+
+    /**
+    * Returns the counters of the events since the last summary.
+     * @return map of the events to their counters
+    */
+    public Map<DiagnosticEvent, Long> getCounters() {
+        Map<DiagnosticEvent, Long> result = new EnumMap<>(DiagnosticEvent.class);
+        for (DiagnosticEvent event : EVENTS) {
+            result.put(event, counters[event.ordinal()].sum());
+        }
+        return result;
+    }
+
+    /**
+    * Checks whether tracing is switched on for the branch. Callers check it before building trace messages, so
+     * nothing is allocated for branches that are not traced.
+    */
+    public boolean isTraced(Long branchId) {
+        return !tracedBranches.isEmpty() && tracedBranches.contains(branchId);
+    }
+
+    /**
+    * Writes a trace message for the branch. Should be guarded by isTraced.
+    */
+    public void trace(Long branchId, String redisKey, long value) {
+        log.info("Trace of department {}: {} = {}", branchId, redisKey, value);
+    }
+
+    /**
+    * Returns the identifiers of the branches for which tracing is switched on.
+    */
+    public Set<Long> getTracedBranches() {
+        return Set.copyOf(tracedBranches);
+    }
+
+    /**
+    * Switches tracing on for the branch.
+    */
+    public void startTrace(Long branchId) {
+        tracedBranches.add(branchId);
+    }
+
+    /**
+    * Switches tracing off for the branch.
+    */
+    public void stopTrace(Long branchId) {
+        tracedBranches.remove(branchId);
+    }
+
+    /**
+    * The summarize method is a scheduled task that writes the counters of the events to the log as a single line
+     * and resets them.
+    */
+    @Scheduled(fixedDelayString = "${app.data-generator.diagnostics-summary-interval}",
+            initialDelayString = "${app.data-generator.diagnostics-summary-interval}",
+            timeUnit = TimeUnit.SECONDS)
+    public void summarize() {
+        StringBuilder summary = new StringBuilder();
+        for (DiagnosticEvent event : EVENTS) {
+            long count = counters[event.ordinal()].sumThenReset();
+            if (count == 0) continue;
+            if (!summary.isEmpty()) summary.append(", ");
+            summary.append(event).append('=').append(count);
+        }
+        if (!summary.isEmpty()) {
+            log.info("Generator summary: {}", summary);
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package org.bitpioneers.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bitpioneers.data.Branch;
+import org.bitpioneers.data.RedisUsage;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+* The KeyExpiryManager class is responsible for bounding the amount of memory the generator occupies in Redis.
+ * Instead of recomputing a time to live on every write, keys are grouped by the branch they belong to and every
+ * group shares a single deadline - the closing time of the branch. The deadline is calculated once per branch per
+ * day and an EXPIREAT command is sent only the first time a key of the group is written that day, or when the key
+ * has just been created. Counter updates themselves are performed with commands that keep the expiry of a key.
+ * <ul>
+ *     <li>
+ *         Expiry management: keys of a branch expire together at the closing time of the branch, so keys of closed
+ *         branches do not linger in the data store.
+ *     </li>
+ *     <li>
+ *         Usage reporting: the class periodically reports the number of keys written by the generator next to the
+ *         size of the whole database and the memory used by Redis.
+ *     </li>
+ * </ul>
+ *
+ * @since 1.0
+ * @author Mirolim Mirzayev
+*/
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class KeyExpiryManager {
+    private final RedisTemplate<String, String> redisTemplate;
+    private final DateTimeService dateTimeService;
+
+    /**
+    * Expiry groups of the branches, keyed by the identifier of a branch.
+    */
+    private final Map<Long, BranchExpiry> branches = new ConcurrentHashMap<>();
+
+    /**
+    * The getDeadline method returns the moment at which the keys of the branch expire today, which is the latest of
+     * its closing times for juridical entities and for individuals. The deadline is calculated on the first call of
+     * the day for the branch.
+     * @param branch branch the keys belong to
+     * @return expiry deadline of the keys of the branch
+    */
+    public Instant getDeadline(Branch branch) {
+        return getExpiry(branch).deadline;
+    }
+
+    /**
+    * The isArmed method checks whether EXPIREAT has already been sent today for the key, so that the command is sent
+     * only for keys that are not armed for today yet or that have just been created and have no expiry at all.
+     * @param branch branch the key belongs to
+     * @param redisKey key of the branch
+    */
+    public boolean isArmed(Branch branch, String redisKey) {
+        return getExpiry(branch).armedKeys.contains(redisKey);
+    }
+
+    /**
+    * The armed method records that EXPIREAT has been sent today for the key.
+     * @param branch branch the key belongs to
+     * @param redisKey key of the branch
+    */
+    public void armed(Branch branch, String redisKey) {
+        BranchExpiry expiry = getExpiry(branch);
+        expiry.armedKeys.add(redisKey);
+        expiry.keys.add(redisKey);
+    }
+
+    private BranchExpiry getExpiry(Branch branch) {
+        LocalDate today = LocalDate.now();
+        BranchExpiry expiry = branches.get(branch.getId());
+        if (expiry != null && expiry.day.equals(today) && !expiry.rescheduled) return expiry;
+        return branches.compute(branch.getId(), (id, current) -> {
+            if (current != null && current.day.equals(today) && !current.rescheduled) return current;
+            BranchExpiry next = new BranchExpiry(today, calculateDeadline(branch));
+            if (current != null && current.day.equals(today)) {
+                // keys written today are still live in Redis and must be deleted if the branch is retired
+                next.keys.addAll(current.keys);
+            }
+            return next;
+        });
+    }
+
+    private Instant calculateDeadline(Branch branch) {
+        if (branch.getJuridicalHours() == null) return dateTimeService.getExpiryDeadline(branch.getIndividualHours());
+        if (branch.getIndividualHours() == null) return dateTimeService.getExpiryDeadline(branch.getJuridicalHours());
+        Instant juridicalDeadline = dateTimeService.getExpiryDeadline(branch.getJuridicalHours());
+        Instant individualDeadline = dateTimeService.getExpiryDeadline(branch.getIndividualHours());
+        return juridicalDeadline.isAfter(individualDeadline) ? juridicalDeadline : individualDeadline;
+    }
+
+    /**
+    * The reschedule method makes the deadline of a branch be calculated again on the next write, after which its keys
+     * are armed again with the new deadline. The keys written today are kept, so they can still be deleted when the
+     * branch is retired. Used when the schedule of a branch has changed.
+     * @param branchId identifier of the branch
+    */
+    public void reschedule(Long branchId) {
+        BranchExpiry expiry = branches.get(branchId);
+        if (expiry != null) expiry.rescheduled = true;
+    }
+
+    /**
+    * The retire method drops the expiry group of a branch and deletes all of its keys known to the manager.
+     * Used when a branch disappears from the department catalogue.
+     * @param branchId identifier of the branch
+    */
+    public void retire(Long branchId) {
+        BranchExpiry expiry = branches.remove(branchId);
+        if (expiry != null && !expiry.keys.isEmpty()) {
+            redisTemplate.delete(expiry.keys);
+        }
+    }
+
+    /**
+    * The getUsage method queries Redis for the number of keys in the whole database and for the used memory, and
+     * counts the keys written by the generator today.
+     * @return snapshot of the Redis usage
+     * @see RedisUsage
+    */
+    public RedisUsage getUsage() {
+        Long databaseKeys = redisTemplate.execute((RedisCallback<Long>) connection -> connection.serverCommands().dbSize());
+        Properties memory = redisTemplate.execute(
+                (RedisCallback<Properties>) connection -> connection.serverCommands().info("memory"));
+        long usedMemory = memory == null ? 0L : Long.parseLong(memory.getProperty("used_memory", "0"));
+        String usedMemoryHuman = memory == null ? "" : memory.getProperty("used_memory_human", "");
+        long generatorKeys = 0;
+        for (BranchExpiry expiry : branches.values()) {
+            generatorKeys += expiry.keys.size();
+        }
+        return new RedisUsage(databaseKeys == null ? 0L : databaseKeys, generatorKeys, usedMemory, usedMemoryHuman,
+                branches.size());
+    }
+
+    /**
+    * The report method is a scheduled task that writes the current Redis usage to the log.
+    */
+    @Scheduled(fixedDelayString = "${app.data-generator.redis-report-interval}",
+            initialDelayString = "${app.data-generator.redis-report-interval}",
+            timeUnit = TimeUnit.MINUTES)
+    public void report() {
+        try {
+            RedisUsage usage = getUsage();
+            log.info("Redis usage: {} generator keys of {} keys in the database, {} used memory, {} branches tracked",
+                    usage.getGeneratorKeys(), usage.getDatabaseKeys(), usage.getUsedMemoryHuman(),
+                    usage.getTrackedBranches());
+        } catch (Exception e) {
+            log.error(e.toString());
+        }
+    }
+
+    /**
+    * The expiry group of a single branch for a single day.
+    */
+    private static final class BranchExpiry {
+        private final LocalDate day;
+        private final Instant deadline;
+        private final Set<String> armedKeys = ConcurrentHashMap.newKeySet();
+
+        /**
+        * All keys of the branch written today, including the ones armed with an earlier deadline of the day.
+        */
+        private final Set<String> keys = ConcurrentHashMap.newKeySet();
+
+        /**
+        * Set when the schedule of the branch has changed and the deadline has to be calculated again.
+        */
+        private volatile boolean rescheduled;
+
+        private BranchExpiry(LocalDate day, Instant deadline) {
+            this.day = day;
+            this.deadline = deadline;
+        }
+    }
+}
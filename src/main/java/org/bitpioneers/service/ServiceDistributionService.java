@@ -0,0 +1,60 @@
+package org.bitpioneers.service;
+
+import org.bitpioneers.data.SpecialDepartmentInfo;
+import org.bitpioneers.types.PersonType;
+import org.bitpioneers.types.ServiceType;
+import org.bitpioneers.types.WeightedSampler;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+* The ServiceDistributionService class builds the distributions of service types and person types of a department
+ * out of its special features. For example, prime branches see more loans and deposits, VIP branches sell more
+ * insurance and branches that serve only individuals are never visited by juridical entities. Departments with the same features share a single sampler, so the alias tables are built once per
+ * combination of features rather than once per department.
+ *
+ * @see WeightedSampler
+ * @since 1.0
+ * @author Mirolim Mirzayev
+*/
+@Service
+public class ServiceDistributionService {
+    private final Map<Integer, WeightedSampler<ServiceType>> serviceSamplers = new ConcurrentHashMap<>();
+    private final Map<Integer, WeightedSampler<PersonType>> personSamplers = new ConcurrentHashMap<>();
+
+    /**
+    * Returns the sampler of service types for a department with the given features.
+     * @param special special features of the department, may be null
+    */
+    public WeightedSampler<ServiceType> getServiceTypes(SpecialDepartmentInfo special) {
+        boolean prime = special != null && special.isPrime();
+        boolean vip = special != null && (special.isVipOffice() || special.isVipZone());
+        int key = (prime ? 1 : 0) | (vip ? 2 : 0);
+        return serviceSamplers.computeIfAbsent(key, k -> ServiceType.weighted(
+                // DEPOSIT, LOAN, POST, FINE, INSURANCE
+                prime ? 4 : 3,
+                prime ? 4 : 2,
+                prime ? 0.5 : 1,
+                1,
+                vip ? 3 : 1));
+    }
+
+    /**
+    * Returns the sampler of person types for a department with the given features. Departments that serve only
+     * individuals or only juridical entities never produce the other type, and departments that have neither flag
+     * set are treated as serving both.
+     * @param special special features of the department, may be null
+    */
+    public WeightedSampler<PersonType> getPersonTypes(SpecialDepartmentInfo special) {
+        boolean unflagged = special == null || (!special.isPerson() && !special.isJuridical());
+        boolean physical = unflagged || special.isPerson();
+        boolean juridical = unflagged || special.isJuridical();
+        int key = (physical ? 1 : 0) | (juridical ? 2 : 0);
+        return personSamplers.computeIfAbsent(key, k -> PersonType.weighted(
+                // PHYSICAL, JURIDICAL
+                physical ? 3 : 0,
+                juridical ? 1 : 0));
+    }
+}
@@ -0,0 +1,66 @@
+package org.bitpioneers.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+* The StartupReporter class measures the time from the start of the JVM to the first ticket written to Redis. It is
+ * used by the startup-optimized build profile to report how long short generator runs take to become productive,
+ * and can optionally stop the application right after the first ticket, which is what the training run of the Class
+ * Data Sharing archive and the startup measurement do.
+ *
+ * @since 1.0
+ * @author Mirolim Mirzayev
+*/
+@Slf4j
+@Service
+public class StartupReporter {
+    private final ApplicationContext applicationContext;
+    private final AtomicBoolean reported = new AtomicBoolean();
+
+    /**
+    * Whether the application should exit once the first ticket has been written.
+    */
+    @Value("${app.data-generator.startup.exit-on-first-ticket}")
+    boolean exitOnFirstTicket;
+
+    /**
+    * The file the measured time in milliseconds is written to, none when empty.
+    */
+    @Value("${app.data-generator.startup.report-file}")
+    String reportFile;
+
+    public StartupReporter(ApplicationContext applicationContext) {
+        this.applicationContext = applicationContext;
+    }
+
+    /**
+    * Called after tickets have been written to Redis. Only the first call is reported, the following ones return
+     * immediately.
+    */
+    public void ticketEmitted() {
+        if (reported.get() || !reported.compareAndSet(false, true)) return;
+        long millis = System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime();
+        log.info("First ticket emitted {} ms after the start of the JVM", millis);
+        if (!reportFile.isEmpty()) {
+            try {
+                Files.writeString(Path.of(reportFile), String.valueOf(millis));
+            } catch (IOException e) {
+                log.error("Could not write startup report: {}", e.toString());
+            }
+        }
+        if (exitOnFirstTicket) {
+            // exit from a separate thread, the caller is a scheduled task that is stopped by the shutdown
+            new Thread(() -> System.exit(SpringApplication.exit(applicationContext)), "startup-exit").start();
+        }
+    }
+}
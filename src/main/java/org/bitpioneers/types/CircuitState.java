@@ -0,0 +1,23 @@
+package org.bitpioneers.types;
+
+/**
+* The CircuitState enum represents the states of the circuit breaker that guards the writes to Redis.
+ * @since 1.0
+ * @author Mirolim Mirzayev
+*/
+public enum CircuitState {
+    /**
+    * Redis is healthy and all requests are let through.
+    */
+    CLOSED,
+
+    /**
+    * Redis has failed repeatedly and requests are rejected without being sent.
+    */
+    OPEN,
+
+    /**
+    * The open period is over and requests are let through to probe whether Redis has recovered.
+    */
+    HALF_OPEN
+}
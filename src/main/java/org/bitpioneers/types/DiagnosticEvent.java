@@ -0,0 +1,74 @@
+package org.bitpioneers.types;
+
+/**
+* The DiagnosticEvent enum lists the events of the generator hot path that are counted by the GeneratorDiagnostics
+ * instead of being logged one by one. The counters are written to the log as a periodic summary.
+ * @since 1.0
+ * @author Mirolim Mirzayev
+*/
+public enum DiagnosticEvent {
+    /**
+    * A run of one of the scheduled ticket tasks.
+    */
+    TICK,
+
+    /**
+    * A ticket was issued for a juridical entity.
+    */
+    JURIDICAL_TICKET,
+
+    /**
+    * The number of all tickets taken by juridical entities was raised.
+    */
+    JURIDICAL_TOTAL,
+
+    /**
+    * A ticket was issued for a physical individual.
+    */
+    INDIVIDUAL_TICKET,
+
+    /**
+    * The number of all tickets taken by physical individuals was raised.
+    */
+    INDIVIDUAL_TOTAL,
+
+    /**
+    * A branch was skipped because it is closed at the moment.
+    */
+    BRANCH_CLOSED,
+
+    /**
+    * A branch was skipped because the visitor drawn from its distribution is of the other person type.
+    */
+    OTHER_PERSON_TYPE,
+
+    /**
+    * An EXPIREAT command was sent for a key.
+    */
+    EXPIRY_SET,
+
+    /**
+    * Processing of a branch failed with an exception.
+    */
+    BRANCH_FAILED,
+
+    /**
+    * A branch was skipped because its counters could not be read from Redis.
+    */
+    REDIS_UNAVAILABLE,
+
+    /**
+    * A counter update was written to Redis.
+    */
+    UPDATE_FLUSHED,
+
+    /**
+    * A counter update was dropped because the write buffer was full.
+    */
+    UPDATE_DROPPED,
+
+    /**
+    * A pipelined batch of counter updates failed.
+    */
+    FLUSH_FAILED
+}
@@ -1,5 +1,7 @@
 package org.bitpioneers.types;
 
+import java.util.concurrent.ThreadLocalRandom;
+
 /**
 * The PersonType enum represents a distinct set of values that categorize individuals or entities into two main types:
  * physical persons and juridical entities. This enumeration is designed to provide a clear and efficient means of
@@ -22,7 +24,12 @@ public enum PersonType {
     * An instance variable that associates an integer value with each enum constant,
     * allowing for differentiation between the two types.
     */
-    private final Integer value;
+    private final int value;
+
+    /**
+    * The enum constants, cached because values() returns a new copy of the array on every call.
+    */
+    private static final PersonType[] VALUES = values();
 
     PersonType(int value) {
         this.value = value;
@@ -32,7 +39,23 @@ public enum PersonType {
     *  A public method that returns the associated integer value for a given enum constant.
      * @return integer for enum constant
     */
-    public Integer getValue(){
+    public int getValue(){
         return value;
     }
+
+    /**
+    * A public method that returns a random PersonType by selecting a random enum constant from the available values
+    */
+    public static PersonType getRandom() {
+        return VALUES[ThreadLocalRandom.current().nextInt(VALUES.length)];
+    }
+
+    /**
+    * A public method that returns a sampler drawing PersonType constants according to the given weights,
+     * one weight per constant in declaration order.
+     * @see WeightedSampler
+    */
+    public static WeightedSampler<PersonType> weighted(double... weights) {
+        return new WeightedSampler<>(VALUES, weights);
+    }
 }
@@ -1,5 +1,7 @@
 package org.bitpioneers.types;
 
+import java.util.concurrent.ThreadLocalRandom;
+
 /**
 * The ServiceType enum represents a finite set of service categories that can be offered by an application or
 * system. It includes services such as deposit, loan, post, fine, and insurance. This enumeration is designed to
@@ -33,10 +35,24 @@ public enum ServiceType {
     */
     INSURANCE;
 
+    /**
+    * The enum constants, cached because values() returns a new copy of the array on every call.
+    */
+    private static final ServiceType[] VALUES = values();
+
     /**
     * A public method that returns a random ServiceType by selecting a random enum constant from the available values
     */
     public static ServiceType getRandom() {
-        return values()[(int) (Math.random() * values().length)];
+        return VALUES[ThreadLocalRandom.current().nextInt(VALUES.length)];
+    }
+
+    /**
+    * A public method that returns a sampler drawing ServiceType constants according to the given weights,
+     * one weight per constant in declaration order.
+     * @see WeightedSampler
+    */
+    public static WeightedSampler<ServiceType> weighted(double... weights) {
+        return new WeightedSampler<>(VALUES, weights);
     }
 }
@@ -0,0 +1,71 @@
+package org.bitpioneers.types;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+* The WeightedSampler class draws constants of an enum according to a weighted distribution in constant time using
+ * the alias method (Vose). The alias table is built once and sampling neither allocates nor contends on a shared
+ * random generator, since the random numbers come from ThreadLocalRandom.
+ *
+ * @param <E> enum whose constants are sampled
+ * @since 1.0
+ * @author Mirolim Mirzayev
+*/
+public final class WeightedSampler<E extends Enum<E>> {
+    private final E[] constants;
+    private final double[] probability;
+    private final int[] alias;
+
+    /**
+    * Builds the alias table of the distribution.
+     * @param constants constants of the enum, in the order of their weights
+     * @param weights non-negative weights of the constants, not necessarily normalized
+     * @throws IllegalArgumentException when the weights do not match the constants or are all zero
+    */
+    public WeightedSampler(E[] constants, double[] weights) {
+        if (constants.length == 0 || constants.length != weights.length) {
+            throw new IllegalArgumentException("Expected " + constants.length + " weights, got " + weights.length);
+        }
+        double sum = 0;
+        for (double weight : weights) {
+            if (weight < 0) throw new IllegalArgumentException("Weights must not be negative");
+            sum += weight;
+        }
+        if (sum <= 0) throw new IllegalArgumentException("At least one weight must be positive");
+
+        int n = constants.length;
+        this.constants = constants.clone();
+        this.probability = new double[n];
+        this.alias = new int[n];
+
+        double[] scaled = new double[n];
+        Deque<Integer> small = new ArrayDeque<>();
+        Deque<Integer> large = new ArrayDeque<>();
+        for (int i = 0; i < n; i++) {
+            scaled[i] = weights[i] * n / sum;
+            (scaled[i] < 1.0 ? small : large).push(i);
+        }
+        while (!small.isEmpty() && !large.isEmpty()) {
+            int less = small.pop();
+            int more = large.pop();
+            probability[less] = scaled[less];
+            alias[less] = more;
+            scaled[more] = scaled[more] + scaled[less] - 1.0;
+            (scaled[more] < 1.0 ? small : large).push(more);
+        }
+        // whatever is left is 1.0 up to rounding errors
+        while (!large.isEmpty()) probability[large.pop()] = 1.0;
+        while (!small.isEmpty()) probability[small.pop()] = 1.0;
+    }
+
+    /**
+    * Draws a constant according to the distribution.
+    */
+    public E sample() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int column = random.nextInt(constants.length);
+        return random.nextDouble() < probability[column] ? constants[column] : constants[alias[column]];
+    }
+}
@@ -0,0 +1,81 @@
+package org.bitpioneers.service;
+
+import org.bitpioneers.types.CircuitState;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CircuitBreakerTest {
+    private static final long LONG_OPEN_MILLIS = 60_000;
+
+    @Test
+    void staysClosedUntilTheThresholdIsReached() {
+        CircuitBreaker breaker = new CircuitBreaker(3, LONG_OPEN_MILLIS);
+
+        assertEquals(CircuitState.CLOSED, breaker.onFailure());
+        assertEquals(CircuitState.CLOSED, breaker.onFailure());
+        assertTrue(breaker.allowRequest());
+
+        assertEquals(CircuitState.OPEN, breaker.onFailure());
+        assertFalse(breaker.allowRequest());
+    }
+
+    @Test
+    void successResetsTheConsecutiveFailures() {
+        CircuitBreaker breaker = new CircuitBreaker(2, LONG_OPEN_MILLIS);
+
+        breaker.onFailure();
+        assertEquals(CircuitState.CLOSED, breaker.onSuccess());
+        breaker.onFailure();
+
+        assertEquals(CircuitState.CLOSED, breaker.getState());
+        assertTrue(breaker.allowRequest());
+    }
+
+    @Test
+    void becomesHalfOpenAfterTheOpenPeriodAndLetsOneProbeThrough() {
+        CircuitBreaker breaker = new CircuitBreaker(1, 0);
+        breaker.onFailure();
+
+        assertTrue(breaker.allowRequest());
+        assertEquals(CircuitState.HALF_OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest());
+        assertFalse(breaker.allowRequest());
+    }
+
+    @Test
+    void successfulProbeClosesTheCircuit() {
+        CircuitBreaker breaker = new CircuitBreaker(1, 0);
+        breaker.onFailure();
+        breaker.allowRequest();
+
+        assertEquals(CircuitState.HALF_OPEN, breaker.onSuccess());
+        assertEquals(CircuitState.CLOSED, breaker.getState());
+        assertTrue(breaker.allowRequest());
+        assertTrue(breaker.allowRequest());
+    }
+
+    @Test
+    void failedProbeOpensTheCircuitAgain() {
+        CircuitBreaker breaker = new CircuitBreaker(3, 0);
+        breaker.onFailure();
+        breaker.onFailure();
+        breaker.onFailure();
+        breaker.allowRequest();
+
+        assertEquals(CircuitState.OPEN, breaker.onFailure());
+        assertTrue(breaker.allowRequest());
+        assertEquals(CircuitState.HALF_OPEN, breaker.getState());
+    }
+
+    @Test
+    void rejectsRequestsWhileOpen() {
+        CircuitBreaker breaker = new CircuitBreaker(1, LONG_OPEN_MILLIS);
+        breaker.onFailure();
+
+        assertFalse(breaker.allowRequest());
+        assertEquals(CircuitState.OPEN, breaker.getState());
+    }
+}
@@ -0,0 +1,141 @@
+package org.bitpioneers.service;
+
+import org.bitpioneers.data.Branch;
+import org.bitpioneers.data.DepartmentInfo;
+import org.bitpioneers.types.CircuitState;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CounterWriteBufferTest {
+    private final FakeRedisTemplate redisTemplate = new FakeRedisTemplate();
+    private final Branch branch = branch(1L);
+
+    @Test
+    void coalescesUpdatesOfOneKey() {
+        CounterWriteBuffer buffer = buffer(10);
+
+        assertTrue(buffer.put(branch, branch.getIndividualTotalKey(), 1));
+        assertTrue(buffer.put(branch, branch.getIndividualTotalKey(), 2));
+        assertTrue(buffer.put(branch, branch.getIndividualTotalKey(), 3));
+
+        assertEquals(1, buffer.getStatus().getPendingUpdates());
+        assertEquals(3, buffer.get(branch, branch.getIndividualTotalKey()));
+
+        buffer.flush();
+
+        assertEquals(1, redisTemplate.pipelines);
+        assertEquals(0, buffer.getStatus().getPendingUpdates());
+    }
+
+    @Test
+    void dropsUpdatesOfNewKeysWhenFull() {
+        CounterWriteBuffer buffer = buffer(2);
+
+        assertTrue(buffer.put(branch, branch.getIndividualTotalKey(), 1));
+        assertTrue(buffer.put(branch, branch.getJuridicalTotalKey(), 1));
+        assertFalse(buffer.put(branch, branch.getIndividualCurrentKey(), 1));
+        assertTrue(buffer.put(branch, branch.getIndividualTotalKey(), 2));
+
+        assertEquals(2, buffer.getStatus().getPendingUpdates());
+    }
+
+    @Test
+    void keepsUpdatesWhileRedisIsUnavailable() {
+        CounterWriteBuffer buffer = buffer(10);
+        buffer.put(branch, branch.getIndividualTotalKey(), 1);
+        redisTemplate.failing = true;
+
+        buffer.flush();
+        buffer.flush();
+
+        assertEquals(1, redisTemplate.pipelines);
+        assertEquals(CircuitState.OPEN, buffer.getStatus().getCircuitState());
+        assertEquals(1, buffer.getStatus().getPendingUpdates());
+    }
+
+    @Test
+    void retiredBranchIsNotWrittenAgain() {
+        CounterWriteBuffer buffer = buffer(10);
+        buffer.put(branch, branch.getIndividualTotalKey(), 5);
+
+        buffer.retire(branch.getId());
+
+        assertEquals(0, buffer.getStatus().getPendingUpdates());
+        assertFalse(buffer.put(branch, branch.getIndividualTotalKey(), 6));
+        assertEquals(CounterWriteBuffer.ABSENT, buffer.get(branch, branch.getIndividualTotalKey()));
+        buffer.flush();
+        assertEquals(0, redisTemplate.pipelines);
+    }
+
+    @Test
+    void restoredBranchIsWrittenOnceAgain() {
+        CounterWriteBuffer buffer = buffer(10);
+        buffer.put(branch, branch.getIndividualTotalKey(), 5);
+        buffer.retire(branch.getId());
+
+        buffer.restore(branch.getId());
+
+        assertTrue(buffer.put(branch, branch.getIndividualTotalKey(), 1));
+        assertEquals(1, buffer.getStatus().getPendingUpdates());
+        buffer.flush();
+        assertEquals(1, redisTemplate.pipelines);
+        assertEquals(0, buffer.getStatus().getPendingUpdates());
+    }
+
+    @Test
+    void retireOfOneBranchKeepsTheOthers() {
+        CounterWriteBuffer buffer = buffer(10);
+        Branch other = branch(2L);
+        buffer.put(branch, branch.getIndividualTotalKey(), 1);
+        buffer.put(other, other.getIndividualTotalKey(), 1);
+
+        buffer.retire(branch.getId());
+
+        assertEquals(1, buffer.getStatus().getPendingUpdates());
+        assertEquals(1, buffer.get(other, other.getIndividualTotalKey()));
+    }
+
+    private CounterWriteBuffer buffer(int maxPending) {
+        DateTimeService dateTimeService = new DateTimeService();
+        KeyExpiryManager keyExpiryManager = new KeyExpiryManager(redisTemplate, dateTimeService);
+        StartupReporter startupReporter = new StartupReporter(null);
+        startupReporter.reportFile = "";
+        return new CounterWriteBuffer(redisTemplate, keyExpiryManager, new GeneratorDiagnostics(), startupReporter,
+                maxPending, 16, 1024, 50, 1000, 1, 60_000);
+    }
+
+    private static Branch branch(Long id) {
+        DepartmentInfo info = new DepartmentInfo();
+        info.setId(id);
+        return new Branch(info, null, null, null, null);
+    }
+
+    /**
+    * Records pipelined writes instead of sending them to Redis.
+    */
+    private static final class FakeRedisTemplate extends RedisTemplate<String, String> {
+        private int pipelines;
+        private boolean failing;
+
+        @Override
+        public List<Object> executePipelined(RedisCallback<?> action) {
+            pipelines++;
+            if (failing) throw new RedisConnectionFailureException("Redis is down");
+            return List.of();
+        }
+
+        @Override
+        public Long delete(Collection<String> keys) {
+            return (long) keys.size();
+        }
+    }
+}
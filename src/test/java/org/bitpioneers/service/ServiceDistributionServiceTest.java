@@ -0,0 +1,62 @@
+package org.bitpioneers.service;
+
+import org.bitpioneers.data.SpecialDepartmentInfo;
+import org.bitpioneers.types.PersonType;
+import org.bitpioneers.types.WeightedSampler;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ServiceDistributionServiceTest {
+    private static final int DRAWS = 100_000;
+
+    private final ServiceDistributionService service = new ServiceDistributionService();
+
+    @Test
+    void individualOnlyBranchesAreNeverVisitedByJuridicalEntities() {
+        long[] counts = draw(service.getPersonTypes(special(true, false)));
+
+        assertEquals(DRAWS, counts[PersonType.PHYSICAL.ordinal()]);
+    }
+
+    @Test
+    void juridicalOnlyBranchesAreNeverVisitedByIndividuals() {
+        long[] counts = draw(service.getPersonTypes(special(false, true)));
+
+        assertEquals(DRAWS, counts[PersonType.JURIDICAL.ordinal()]);
+    }
+
+    @Test
+    void branchesWithoutFlagsAreVisitedByBothTypes() {
+        long[] withoutSpecial = draw(service.getPersonTypes(null));
+        long[] withoutFlags = draw(service.getPersonTypes(special(false, false)));
+
+        assertTrue(withoutSpecial[PersonType.PHYSICAL.ordinal()] > 0);
+        assertTrue(withoutSpecial[PersonType.JURIDICAL.ordinal()] > 0);
+        assertTrue(withoutFlags[PersonType.PHYSICAL.ordinal()] > 0);
+        assertTrue(withoutFlags[PersonType.JURIDICAL.ordinal()] > 0);
+    }
+
+    @Test
+    void branchesWithTheSameFlagsShareOneSampler() {
+        assertSame(service.getPersonTypes(special(true, false)), service.getPersonTypes(special(true, false)));
+        assertSame(service.getPersonTypes(null), service.getPersonTypes(special(true, true)));
+    }
+
+    private static SpecialDepartmentInfo special(boolean person, boolean juridical) {
+        SpecialDepartmentInfo special = new SpecialDepartmentInfo();
+        special.setPerson(person);
+        special.setJuridical(juridical);
+        return special;
+    }
+
+    private static long[] draw(WeightedSampler<PersonType> sampler) {
+        long[] counts = new long[PersonType.values().length];
+        for (int i = 0; i < DRAWS; i++) {
+            counts[sampler.sample().ordinal()]++;
+        }
+        return counts;
+    }
+}
@@ -0,0 +1,60 @@
+package org.bitpioneers.types;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class WeightedSamplerTest {
+    private static final int DRAWS = 1_000_000;
+
+    @Test
+    void drawsConstantsInProportionToTheirWeights() {
+        double[] weights = {4, 4, 0.5, 1, 3};
+        WeightedSampler<ServiceType> sampler = ServiceType.weighted(weights);
+
+        long[] counts = draw(sampler);
+
+        double sum = 0;
+        for (double weight : weights) sum += weight;
+        for (ServiceType serviceType : ServiceType.values()) {
+            double expected = weights[serviceType.ordinal()] / sum;
+            double actual = (double) counts[serviceType.ordinal()] / DRAWS;
+            assertEquals(expected, actual, 5e-3, serviceType.name());
+        }
+    }
+
+    @Test
+    void neverDrawsConstantsWithZeroWeight() {
+        WeightedSampler<ServiceType> sampler = ServiceType.weighted(4, 4, 0, 1, 0);
+
+        long[] counts = draw(sampler);
+
+        assertEquals(0, counts[ServiceType.POST.ordinal()]);
+        assertEquals(0, counts[ServiceType.INSURANCE.ordinal()]);
+    }
+
+    @Test
+    void alwaysDrawsTheOnlyConstantWithPositiveWeight() {
+        WeightedSampler<ServiceType> sampler = ServiceType.weighted(0, 0, 0, 2, 0);
+
+        long[] counts = draw(sampler);
+
+        assertEquals(DRAWS, counts[ServiceType.FINE.ordinal()]);
+    }
+
+    @Test
+    void rejectsInvalidWeights() {
+        assertThrows(IllegalArgumentException.class, () -> ServiceType.weighted(1, 1));
+        assertThrows(IllegalArgumentException.class, () -> ServiceType.weighted(1, 1, -1, 1, 1));
+        assertThrows(IllegalArgumentException.class, () -> ServiceType.weighted(0, 0, 0, 0, 0));
+    }
+
+    private static long[] draw(WeightedSampler<ServiceType> sampler) {
+        long[] counts = new long[ServiceType.values().length];
+        for (int i = 0; i < DRAWS; i++) {
+            counts[sampler.sample().ordinal()]++;
+        }
+        return counts;
+    }
+}